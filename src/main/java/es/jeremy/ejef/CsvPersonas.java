@@ -0,0 +1,106 @@
+package es.jeremy.ejef;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * La clase {@code CsvPersonas} reúne el formato CSV usado para guardar y leer personas.
+ * Cada persona ocupa una línea en el formato: Nombre, Apellidos, Edad.
+ * Los campos que contienen comas o comillas se escriben entre comillas dobles, duplicando
+ * las comillas interiores, para que se puedan volver a leer sin perder datos.
+ */
+public final class CsvPersonas {
+
+    /** Línea de cabecera que encabeza todos los archivos CSV de personas. */
+    public static final String CABECERA = "Nombre,Apellidos,Edad";
+
+    /**
+     * Constructor privado: esta clase solo ofrece métodos estáticos.
+     */
+    private CsvPersonas() {
+    }
+
+    /**
+     * Convierte una persona en una línea CSV, sin el salto de línea final.
+     *
+     * @param persona La persona que se quiere convertir.
+     * @return La línea CSV que representa a la persona.
+     */
+    public static String aLinea(Persona persona) {
+        return campo(persona.getNombre()) + "," + campo(persona.getApellidos()) + "," + persona.getEdad();
+    }
+
+    /**
+     * Convierte una línea CSV en una persona.
+     *
+     * @param linea La línea leída del archivo.
+     * @return La persona representada por la línea.
+     * @throws IllegalArgumentException si la línea no tiene tres campos o la edad no es válida.
+     */
+    public static Persona desdeLinea(String linea) {
+        List<String> data = separar(linea);
+        if (data.size() != 3) {
+            throw new IllegalArgumentException("Línea inválida: " + linea);
+        }
+        // NumberFormatException es una IllegalArgumentException, igual que una edad negativa
+        return new Persona(data.get(0), data.get(1), Integer.parseInt(data.get(2)));
+    }
+
+    /**
+     * Escribe un campo de texto, entre comillas si contiene caracteres especiales.
+     *
+     * @param valor El texto del campo.
+     * @return El campo listo para escribirse en la línea.
+     */
+    private static String campo(String valor) {
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0) {
+            return valor;
+        }
+        return "\"" + valor.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * Separa una línea en sus campos, teniendo en cuenta los campos entre comillas.
+     * Las comillas solo abren un campo entrecomillado al principio del campo, de modo que
+     * las líneas antiguas sin comillas se leen igual que antes.
+     *
+     * @param linea La línea leída del archivo.
+     * @return Los campos de la línea.
+     * @throws IllegalArgumentException si hay unas comillas sin cerrar.
+     */
+    private static List<String> separar(String linea) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        boolean entreComillas = false;
+        boolean entrecomillado = false;
+
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (entreComillas) {
+                if (c != '"') {
+                    actual.append(c);
+                } else if (i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                    actual.append('"');
+                    i++;
+                } else {
+                    entreComillas = false;
+                }
+            } else if (c == ',') {
+                campos.add(actual.toString());
+                actual.setLength(0);
+                entrecomillado = false;
+            } else if (c == '"' && actual.isEmpty() && !entrecomillado) {
+                entreComillas = true;
+                entrecomillado = true;
+            } else {
+                actual.append(c);
+            }
+        }
+
+        if (entreComillas) {
+            throw new IllegalArgumentException("Comillas sin cerrar: " + linea);
+        }
+        campos.add(actual.toString());
+        return campos;
+    }
+}
@@ -86,6 +86,7 @@ public class EditarPersonaController {
 
             // Notificar al controlador padre que los datos han cambiado
             parentController.actualizarTabla();
+            parentController.marcarCambios();
 
             // Cerrar la ventana
             cerrarVentana();
@@ -0,0 +1,219 @@
+package es.jeremy.ejef;
+
+import javafx.application.Platform;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * La clase {@code GuardadoAutomatico} guarda la lista de personas en segundo plano
+ * cuando hay cambios sin guardar.
+ * Las ráfagas de cambios se agrupan en una sola escritura, que se hace tras un periodo
+ * sin cambios o, como mucho, un tiempo máximo después del primer cambio pendiente.
+ * El archivo se escribe primero en un temporal y después se renombra, para que nunca
+ * quede a medio escribir.
+ * No escribe nada hasta que se llama a {@link #activar(boolean)}, para no sustituir el
+ * archivo de una sesión anterior antes de haberlo restaurado.
+ * Todos los métodos públicos deben llamarse desde el hilo de JavaFX.
+ */
+public class GuardadoAutomatico {
+
+    /** Tiempo sin cambios tras el que se guarda, en milisegundos. */
+    private static final long PERIODO_CALMA_MS = 2_000;
+
+    /** Tiempo máximo que un cambio puede quedar sin guardar, en milisegundos. */
+    private static final long RETARDO_MAXIMO_MS = 10_000;
+
+    /** Tiempo máximo que se espera a la última escritura al cerrar, en segundos. */
+    private static final long ESPERA_CIERRE_S = 5;
+
+    /** Archivo donde se guardan las personas. */
+    private final Path destino;
+
+    /** Lista de personas que se guarda. */
+    private final Collection<Persona> personas;
+
+    /** Hilo único que programa y realiza las escrituras, en orden. */
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread hilo = new Thread(r, "guardado-automatico");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    /** Guardado programado pendiente, o {@code null} si no hay ninguno. */
+    private ScheduledFuture<?> pendiente;
+
+    /** Indica si ya se ha restaurado el archivo anterior y se puede escribir en él. */
+    private boolean activo;
+
+    /** Instante del primer cambio sin guardar, en milisegundos, o {@code -1} si no hay cambios. */
+    private long primerCambio = -1;
+
+    /**
+     * Crea el servicio de guardado automático.
+     *
+     * @param destino  Archivo donde se guardan las personas.
+     * @param personas Lista de personas que se guarda.
+     */
+    public GuardadoAutomatico(Path destino, Collection<Persona> personas) {
+        this.destino = destino;
+        this.personas = personas;
+    }
+
+    /**
+     * Indica que la lista ha cambiado y programa un guardado.
+     * Cada cambio retrasa el guardado hasta el final del periodo de calma,
+     * sin superar el retardo máximo desde el primer cambio pendiente.
+     */
+    public void marcarCambio() {
+        if (executor.isShutdown()) {
+            return;
+        }
+        long ahora = System.currentTimeMillis();
+        if (primerCambio < 0) {
+            primerCambio = ahora;
+        }
+        if (activo) {
+            programarGuardado(ahora);
+        }
+    }
+
+    /**
+     * Permite empezar a escribir, una vez terminada la restauración del archivo anterior.
+     * Si no se pudo restaurar, el archivo anterior se renombra con la extensión {@code .bak}
+     * antes de la primera escritura para no perder sus datos. Las copias anteriores nunca
+     * se sustituyen.
+     * Los cambios que se hayan marcado antes se guardan a continuación.
+     *
+     * @param restaurado {@code true} si el archivo anterior se restauró por completo o no existía.
+     */
+    public void activar(boolean restaurado) {
+        if (activo || executor.isShutdown()) {
+            return;
+        }
+        activo = true;
+        if (!restaurado) {
+            executor.execute(this::apartarAnterior);
+        }
+        if (primerCambio >= 0) {
+            programarGuardado(System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Programa el guardado según el periodo de calma y el retardo máximo.
+     *
+     * @param ahora El instante actual, en milisegundos.
+     */
+    private void programarGuardado(long ahora) {
+        if (pendiente != null) {
+            pendiente.cancel(false);
+        }
+
+        long espera = Math.min(PERIODO_CALMA_MS, primerCambio + RETARDO_MAXIMO_MS - ahora);
+        pendiente = executor.schedule(() -> Platform.runLater(this::guardar),
+                Math.max(0, espera), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Guarda los cambios pendientes y detiene el servicio.
+     * Se llama al cerrar la aplicación; es el único caso en el que se espera a la escritura.
+     */
+    public void detener() {
+        // Si se cierra con cambios antes de terminar la restauración, se conserva también el archivo anterior
+        if (primerCambio >= 0) {
+            activar(false);
+        }
+        guardar();
+        executor.shutdown();
+        try {
+            executor.awaitTermination(ESPERA_CIERRE_S, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Toma una copia de la lista en el hilo de JavaFX y la escribe en segundo plano.
+     * Si no hay cambios pendientes no hace nada.
+     */
+    private void guardar() {
+        if (primerCambio < 0 || !activo || executor.isShutdown()) {
+            return;
+        }
+        primerCambio = -1;
+        if (pendiente != null) {
+            pendiente.cancel(false);
+            pendiente = null;
+        }
+
+        // Copiar también las personas, porque se pueden editar mientras se escribe
+        List<Persona> copia = new ArrayList<>(personas.size());
+        for (Persona persona : personas) {
+            copia.add(new Persona(persona.getNombre(), persona.getApellidos(), persona.getEdad()));
+        }
+        executor.execute(() -> escribir(copia));
+    }
+
+    /**
+     * Renombra el archivo anterior con la hora actual y la extensión {@code .bak}, si existe.
+     * El nombre lleva la hora para no sustituir nunca una copia de una sesión anterior.
+     */
+    private void apartarAnterior() {
+        try {
+            if (Files.exists(destino)) {
+                Path copia = destino.resolveSibling(destino.getFileName() + "." + System.currentTimeMillis() + ".bak");
+                Files.move(destino, copia);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Escribe las personas en un archivo temporal y lo renombra sobre el destino.
+     *
+     * @param copia Las personas que se van a guardar.
+     */
+    private void escribir(List<Persona> copia) {
+        Path temporal = null;
+        try {
+            Path directorio = destino.toAbsolutePath().getParent();
+            Files.createDirectories(directorio);
+            temporal = Files.createTempFile(directorio, destino.getFileName().toString(), ".tmp");
+
+            try (BufferedWriter writer = Files.newBufferedWriter(temporal)) {
+                writer.write(CsvPersonas.CABECERA + "\n");
+                for (Persona persona : copia) {
+                    writer.write(CsvPersonas.aLinea(persona) + "\n");
+                }
+            }
+
+            try {
+                Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            if (temporal != null) {
+                try {
+                    Files.deleteIfExists(temporal);
+                } catch (IOException ex) {
+                    ex.printStackTrace();
+                }
+            }
+        }
+    }
+}
@@ -1,47 +1,179 @@
 package es.jeremy.ejef;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 import javafx.scene.image.Image;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * La clase {@code HelloApplication} es la clase principal para iniciar una aplicación
  * JavaFX que carga una interfaz de usuario definida en un archivo FXML.
  * Extiende la clase {@code Application} de JavaFX, que es el punto de entrada
  * para cualquier aplicación JavaFX.
+ * Acepta los argumentos {@code --arranque-rapido}, que muestra la ventana antes de hacer
+ * el trabajo no imprescindible, y {@code --entrenamiento}, que además cierra la aplicación
+ * al terminar ese trabajo para generar el archivo CDS.
  */
 public class HelloApplication extends Application {
 
+    /** Argumento que activa el modo de arranque rápido. */
+    private static final String ARRANQUE_RAPIDO = "--arranque-rapido";
+
+    /** Argumento que activa la ejecución de entrenamiento para el archivo CDS. */
+    private static final String ENTRENAMIENTO = "--entrenamiento";
+
+    /** Ventanas secundarias cuyo FXML se precarga en el modo de arranque rápido. */
+    private static final List<String> VENTANAS_SECUNDARIAS = List.of("ventana.fxml", "editarventana.fxml");
+
+    /** Controlador de la ventana principal. */
+    private HelloController controller;
+
     /**
      * Este método se llama al iniciar la aplicación JavaFX.
      * Es responsable de configurar la ventana principal de la aplicación,
      * cargar la escena desde un archivo FXML, y establecer el icono de la ventana.
+     * En el modo de arranque rápido el icono, la precarga de las ventanas secundarias y la
+     * restauración del guardado automático empiezan después del primer fotograma.
+     * En la ejecución de entrenamiento no se restaura el guardado automático, así que
+     * tampoco se escribe nada en el archivo del usuario.
      *
      * @param stage El escenario principal proporcionado por la plataforma JavaFX.
      * @throws IOException Si hay un error al cargar el archivo FXML.
      */
     @Override
     public void start(Stage stage) throws IOException {
+        List<String> args = getParameters().getRaw();
+        boolean entrenamiento = args.contains(ENTRENAMIENTO);
+        boolean arranqueRapido = entrenamiento || args.contains(ARRANQUE_RAPIDO);
+
         // Cargar el archivo FXML
         FXMLLoader fxmlLoader = new FXMLLoader(HelloApplication.class.getResource("hello-view.fxml"));
 
         // Crear la escena con las dimensiones adecuadas
         Scene scene = new Scene(fxmlLoader.load(), 734, 474);
+        controller = fxmlLoader.getController();
+        medirPrimerFotograma(scene, arranqueRapido ? () -> iniciarDiferido(stage, entrenamiento) : null);
 
         // Establecer el título de la ventana
         stage.setTitle("Personas");
 
-        // Cargar el logo como imagen
-        Image icon = new Image(getClass().getResourceAsStream("/img/agenda.png"));
-        stage.getIcons().add(icon); // Establecer el ícono de la ventana
+        if (!arranqueRapido) {
+            // Cargar el logo como imagen
+            Image icon = new Image(getClass().getResourceAsStream("/img/agenda.png"));
+            stage.getIcons().add(icon); // Establecer el ícono de la ventana
+        }
 
         // Mostrar la escena en la ventana
         stage.setScene(scene);
         stage.show();
+
+        if (!arranqueRapido) {
+            controller.restaurarAutoguardado();
+        }
+    }
+
+    /**
+     * Empieza el trabajo diferido del modo de arranque rápido, una vez pintado el primer fotograma.
+     *
+     * @param stage         El escenario principal.
+     * @param entrenamiento Si es {@code true}, no restaura el guardado automático y cierra la
+     *                      aplicación al terminar.
+     */
+    private void iniciarDiferido(Stage stage, boolean entrenamiento) {
+        if (!entrenamiento) {
+            controller.restaurarAutoguardado();
+        }
+        Thread.ofVirtual().name("arranque-diferido").start(() -> cargarDiferido(stage, entrenamiento));
+    }
+
+    /**
+     * Carga en segundo plano el trabajo que no hace falta para el primer fotograma:
+     * el icono de la ventana y el FXML de las ventanas secundarias, que solo se carga
+     * para tener ya inicializadas sus clases cuando el usuario las abra.
+     *
+     * @param stage         El escenario principal.
+     * @param entrenamiento Si es {@code true}, cierra la aplicación al terminar.
+     */
+    private void cargarDiferido(Stage stage, boolean entrenamiento) {
+        try {
+            try {
+                // Cargar el logo como imagen
+                Image icon = new Image(getClass().getResourceAsStream("/img/agenda.png"));
+                Platform.runLater(() -> stage.getIcons().add(icon)); // Establecer el ícono de la ventana
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+
+            for (String ventana : VENTANAS_SECUNDARIAS) {
+                try {
+                    new FXMLLoader(HelloApplication.class.getResource(ventana)).load();
+                } catch (IOException | RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+        } finally {
+            // La ejecución de entrenamiento debe terminar siempre, o el build se quedaría esperando
+            if (entrenamiento) {
+                Platform.runLater(Platform::exit);
+            }
+        }
+    }
+
+    /**
+     * Muestra por consola el tiempo desde el inicio del proceso hasta el primer fotograma,
+     * medido en el primer pulso de la escena tras su maquetación.
+     * Si el sistema no informa del inicio del proceso, se mide desde la llamada a
+     * {@link #start(Stage)} y así se indica, porque no incluye el arranque de la JVM ni de JavaFX.
+     *
+     * @param scene             La escena principal.
+     * @param alPrimerFotograma Acción que se ejecuta tras la medición, o {@code null} si no hay ninguna.
+     */
+    private void medirPrimerFotograma(Scene scene, Runnable alPrimerFotograma) {
+        Optional<Instant> inicioProceso = ProcessHandle.current().info().startInstant();
+        Instant inicio = inicioProceso.orElse(Instant.now());
+        String mensaje = inicioProceso.isPresent()
+                ? "Tiempo hasta el primer fotograma: "
+                : "Inicio del proceso desconocido. Tiempo desde start() hasta el primer fotograma: ";
+        Runnable medir = new Runnable() {
+            /** Indica si ya se ha medido el primer fotograma. */
+            private boolean medido;
+
+            @Override
+            public void run() {
+                if (medido) {
+                    return;
+                }
+                medido = true;
+                // Quitar el oyente fuera del pulso, mientras no se está recorriendo la lista
+                Platform.runLater(() -> scene.removePostLayoutPulseListener(this));
+                long ms = Duration.between(inicio, Instant.now()).toMillis();
+                System.out.println(mensaje + ms + " ms");
+                if (alPrimerFotograma != null) {
+                    // Fuera del pulso, para no retrasar el fotograma que se está pintando
+                    Platform.runLater(alPrimerFotograma);
+                }
+            }
+        };
+        scene.addPostLayoutPulseListener(medir);
+    }
+
+    /**
+     * Este método se llama al cerrar la aplicación.
+     * Guarda los cambios que aún no se hayan guardado automáticamente.
+     */
+    @Override
+    public void stop() {
+        if (controller != null) {
+            controller.detener();
+        }
     }
 
     /**
@@ -53,6 +185,6 @@ public class HelloApplication extends Application {
      */
     public static void main(String[] args) {
         // Iniciar la aplicación
-        launch();
+        launch(args);
     }
 }
@@ -1,5 +1,6 @@
 package es.jeremy.ejef;
 
+import javafx.application.Platform;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
@@ -14,6 +15,11 @@ import javafx.stage.Modality;
 import javafx.stage.Stage;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * La clase {@code HelloController} actúa como el controlador principal de la interfaz de usuario.
@@ -58,13 +64,32 @@ public class HelloController {
     @FXML
     private Button importarButton;
 
+    /** Casilla para exportar las personas ordenadas por apellidos, nombre y edad. */
+    @FXML
+    private CheckBox exportarOrdenadoCheck;
+
     /** Campo de texto para filtrar personas por nombre. */
     @FXML
     private TextField filtroNombreField;
 
+    /** Número máximo de personas que se ordenan en memoria en cada tramo de la exportación ordenada. */
+    private static final int TAMANO_TRAMO_EXPORTACION = 50_000;
+
+    /** Archivo donde se guardan automáticamente las personas. */
+    private static final Path ARCHIVO_AUTOGUARDADO = Path.of(System.getProperty("user.home"), "personas-autoguardado.csv");
+
     /** Lista observable que almacena las personas a mostrar en la tabla. */
     private ObservableList<Persona> personas;
 
+    /** Servicio que guarda la lista en segundo plano cuando cambia. */
+    private GuardadoAutomatico guardadoAutomatico;
+
+    /**
+     * Número de cargas de datos en curso. Mientras haya alguna no se puede agregar, modificar
+     * ni importar, para que los duplicados se puedan descartar con la lista del inicio de la carga.
+     */
+    private int cargasEnCurso;
+
     /**
      * Método de inicialización de JavaFX. Configura las columnas de la tabla,
      * asigna acciones a los botones y habilita el filtrado de la tabla.
@@ -73,6 +98,7 @@ public class HelloController {
     public void initialize() {
         personas = FXCollections.observableArrayList();
         tableView.setItems(personas);
+        guardadoAutomatico = new GuardadoAutomatico(ARCHIVO_AUTOGUARDADO, personas);
 
         // Configurar las columnas de la tabla
         nombreColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getNombre()));
@@ -156,6 +182,7 @@ public class HelloController {
         Persona personaSeleccionada = tableView.getSelectionModel().getSelectedItem();
         if (personaSeleccionada != null) {
             personas.remove(personaSeleccionada);
+            marcarCambios();
             mostrarAlerta("Éxito", "Persona eliminada con éxito.");
         } else {
             mostrarAlerta("Advertencia", "Por favor, selecciona una persona para eliminar.");
@@ -170,6 +197,7 @@ public class HelloController {
     public void agregarPersona(Persona nuevaPersona) {
         if (!personas.contains(nuevaPersona)) {
             personas.add(nuevaPersona);
+            marcarCambios();
             mostrarAlerta("Éxito", "Persona agregada con éxito.");
         } else {
             mostrarAlerta("Error", "Esta persona ya existe en la lista.");
@@ -190,6 +218,56 @@ public class HelloController {
         alert.showAndWait();
     }
 
+    /**
+     * Indica que la lista de personas ha cambiado para que se guarde automáticamente.
+     */
+    public void marcarCambios() {
+        guardadoAutomatico.marcarCambio();
+    }
+
+    /**
+     * Restaura en segundo plano las personas del archivo de guardado automático de la sesión
+     * anterior. El guardado automático no escribe hasta que termina la restauración; si no se
+     * pudo leer el archivo completo, se conserva una copia con la extensión {@code .bak}.
+     */
+    public void restaurarAutoguardado() {
+        empezarCarga();
+        // Las personas restauradas ya están guardadas, así que no se marcan como cambios
+        ImportadorCSV importador = new ImportadorCSV(personas,
+                lote -> Platform.runLater(() -> personas.addAll(lote)));
+
+        Thread.ofVirtual().name("restaurar-autoguardado").start(() -> {
+            boolean restaurado = false;
+            try {
+                if (Files.exists(ARCHIVO_AUTOGUARDADO)) {
+                    ImportadorCSV.Resumen resumen = importador.importar(List.of(ARCHIVO_AUTOGUARDADO.toFile()));
+                    // Una línea descartada se perdería en el siguiente guardado
+                    restaurado = resumen.fallidos().isEmpty() && resumen.invalidas() == 0;
+                } else {
+                    restaurado = true;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            } finally {
+                boolean resultado = restaurado;
+                Platform.runLater(() -> {
+                    terminarCarga();
+                    guardadoAutomatico.activar(resultado);
+                });
+            }
+        });
+    }
+
+    /**
+     * Guarda los cambios pendientes y detiene el guardado automático.
+     * Debe llamarse al cerrar la aplicación.
+     */
+    public void detener() {
+        guardadoAutomatico.detener();
+    }
+
     /**
      * Refresca el contenido de la tabla, útil después de realizar modificaciones.
      */
@@ -220,6 +298,7 @@ public class HelloController {
     /**
      * Exporta la lista de personas a un archivo CSV seleccionado por el usuario.
      * Cada persona se guarda en una línea en el formato: Nombre, Apellidos, Edad.
+     * Si está marcada la exportación ordenada, se delega en {@link #exportarOrdenado(File)}.
      */
     private void exportarCSV() {
         FileChooser fileChooser = new FileChooser();
@@ -227,10 +306,14 @@ public class HelloController {
         File file = fileChooser.showSaveDialog(null);
 
         if (file != null) {
+            if (exportarOrdenadoCheck.isSelected()) {
+                exportarOrdenado(file);
+                return;
+            }
             try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
-                writer.write("Nombre,Apellidos,Edad\n");
+                writer.write(CsvPersonas.CABECERA + "\n");
                 for (Persona persona : personas) {
-                    writer.write(persona.getNombre() + "," + persona.getApellidos() + "," + persona.getEdad() + "\n");
+                    writer.write(CsvPersonas.aLinea(persona) + "\n");
                 }
                 mostrarAlerta("Éxito", "Datos exportados correctamente.");
             } catch (IOException e) {
@@ -241,43 +324,150 @@ public class HelloController {
     }
 
     /**
-     * Importa una lista de personas desde un archivo CSV seleccionado por el usuario.
+     * Exporta la lista de personas ordenada por apellidos, nombre y edad y sin repetidos.
+     * La ordenación se hace en segundo plano con un {@link OrdenadorExterno}, que vuelca
+     * tramos a archivos temporales para no depender de la memoria disponible.
+     * El resultado se escribe en un archivo temporal que solo sustituye al elegido si la
+     * exportación termina bien.
+     *
+     * @param file El archivo donde se guardan los datos.
+     */
+    private void exportarOrdenado(File file) {
+        // Copiar también las personas, porque se pueden editar mientras se exporta
+        List<Persona> copia = new ArrayList<>(personas.size());
+        for (Persona persona : personas) {
+            copia.add(new Persona(persona.getNombre(), persona.getApellidos(), persona.getEdad()));
+        }
+        exportarButton.setDisable(true);
+
+        Thread.ofVirtual().name("exportar-csv").start(() -> {
+            boolean exito = false;
+            Path destino = file.toPath().toAbsolutePath();
+            Path temporal = null;
+            try {
+                temporal = Files.createTempFile(destino.getParent(), destino.getFileName().toString(), ".tmp");
+                try (BufferedWriter writer = Files.newBufferedWriter(temporal)) {
+                    writer.write(CsvPersonas.CABECERA + "\n");
+                    new OrdenadorExterno(TAMANO_TRAMO_EXPORTACION).ordenar(copia.iterator(), writer);
+                }
+                Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING);
+                exito = true;
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+            } finally {
+                if (!exito && temporal != null) {
+                    try {
+                        Files.deleteIfExists(temporal);
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+
+                boolean resultado = exito;
+                Platform.runLater(() -> {
+                    exportarButton.setDisable(false);
+                    if (resultado) {
+                        mostrarAlerta("Éxito", "Datos exportados correctamente.");
+                    } else {
+                        mostrarAlerta("Error", "No se pudo exportar los datos.");
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Importa personas desde uno o varios archivos CSV seleccionados por el usuario.
      * Cada línea debe contener datos en el formato: Nombre, Apellidos, Edad.
+     * Los archivos se leen en segundo plano y las personas se añaden a la tabla por lotes;
+     * al terminar se muestra un resumen con los duplicados y las líneas inválidas.
+     * Mientras dura no se puede agregar, modificar ni importar.
      */
     private void importarCSV() {
         FileChooser fileChooser = new FileChooser();
         fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV Files", "*.csv"));
-        File file = fileChooser.showOpenDialog(null);
-
-        if (file != null) {
-            try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-                String line;
-                reader.readLine();  // Ignorar la primera línea (cabecera)
-
-                while ((line = reader.readLine()) != null) {
-                    String[] data = line.split(",");
-                    if (data.length == 3) {
-                        String nombre = data[0];
-                        String apellidos = data[1];
-                        int edad = Integer.parseInt(data[2]);
-
-                        Persona nuevaPersona = new Persona(nombre, apellidos, edad);
-                        if (!personas.contains(nuevaPersona)) {
-                            personas.add(nuevaPersona);
+        List<File> files = fileChooser.showOpenMultipleDialog(null);
+
+        if (files != null && !files.isEmpty()) {
+            empezarCarga();
+            ImportadorCSV importador = new ImportadorCSV(personas,
+                    lote -> Platform.runLater(() -> publicarLote(lote)));
+
+            Thread.ofVirtual().name("importar-csv").start(() -> {
+                ImportadorCSV.Resumen resumen = null;
+                try {
+                    resumen = importador.importar(files);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                } finally {
+                    // Se ejecuta después de los lotes ya publicados, que usan la misma cola de JavaFX
+                    ImportadorCSV.Resumen resultado = resumen;
+                    Platform.runLater(() -> {
+                        terminarCarga();
+                        if (resultado != null) {
+                            mostrarResumenImportacion(resultado);
                         } else {
-                            mostrarAlerta("Advertencia", "La persona " + nombre + " ya existe en la lista.");
+                            mostrarAlerta("Error", "No se pudo importar los datos.");
                         }
-                    } else {
-                        mostrarAlerta("Error", "Línea inválida en el archivo: " + line);
-                    }
+                    });
                 }
-                mostrarAlerta("Éxito", "Datos importados correctamente.");
-            } catch (IOException e) {
-                e.printStackTrace();
-                mostrarAlerta("Error", "No se pudo importar los datos.");
-            } catch (NumberFormatException e) {
-                mostrarAlerta("Error", "El archivo contiene datos inválidos.");
-            }
+            });
+        }
+    }
+
+    /**
+     * Añade a la lista un lote de personas importadas.
+     * El importador ya ha descartado las repetidas, porque durante la carga la lista
+     * solo puede perder personas, nunca ganarlas ni cambiarlas.
+     *
+     * @param lote Las personas importadas.
+     */
+    private void publicarLote(List<Persona> lote) {
+        personas.addAll(lote);
+        marcarCambios();
+    }
+
+    /**
+     * Marca el inicio de una carga de datos y desactiva los botones que modifican o
+     * añaden personas.
+     */
+    private void empezarCarga() {
+        if (cargasEnCurso++ == 0) {
+            agregarButton.setDisable(true);
+            modificarButton.setDisable(true);
+            importarButton.setDisable(true);
+        }
+    }
+
+    /**
+     * Marca el final de una carga de datos y, si no queda ninguna, vuelve a activar los botones.
+     */
+    private void terminarCarga() {
+        if (--cargasEnCurso == 0) {
+            agregarButton.setDisable(false);
+            modificarButton.setDisable(false);
+            importarButton.setDisable(false);
+        }
+    }
+
+    /**
+     * Muestra el resultado de una importación.
+     *
+     * @param resumen El resumen devuelto por el importador.
+     */
+    private void mostrarResumenImportacion(ImportadorCSV.Resumen resumen) {
+        if (!resumen.fallidos().isEmpty()) {
+            mostrarAlerta("Error", "No se pudo importar los datos de: " + String.join(", ", resumen.fallidos()));
+        }
+        String mensaje = "Datos importados correctamente: " + resumen.importadas() + " personas.";
+        if (resumen.duplicadas() > 0) {
+            mensaje += "\n" + resumen.duplicadas() + " personas ya existían en la lista.";
+        }
+        if (resumen.invalidas() > 0) {
+            mensaje += "\n" + resumen.invalidas() + " líneas inválidas ignoradas.";
         }
+        mostrarAlerta("Éxito", mensaje);
     }
 }
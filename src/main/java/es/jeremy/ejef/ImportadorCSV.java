@@ -0,0 +1,186 @@
+package es.jeremy.ejef;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * La clase {@code ImportadorCSV} importa varios archivos CSV de personas a la vez.
+ * Cada archivo se lee en su propio hilo virtual y todos comparten un conjunto concurrente
+ * de personas ya vistas para descartar duplicados. Un único consumidor fusiona los lotes
+ * leídos y los publica, de modo que el tiempo total depende del archivo más lento y no
+ * de la suma de todos.
+ */
+public class ImportadorCSV {
+
+    /** Número de personas que cada lector acumula antes de entregar un lote. */
+    private static final int TAMANO_LOTE = 500;
+
+    /** Lote especial que indica al consumidor que ya no llegarán más lotes. */
+    private static final List<Persona> FIN = new ArrayList<>();
+
+    /** Personas ya vistas, tanto las existentes como las importadas. */
+    private final Set<Persona> vistas = ConcurrentHashMap.newKeySet();
+
+    /** Recibe cada lote fusionado de personas nuevas. */
+    private final Consumer<List<Persona>> publicador;
+
+    /** Número de personas descartadas por estar repetidas. */
+    private final AtomicInteger duplicadas = new AtomicInteger();
+
+    /** Número de líneas descartadas por tener un formato inválido. */
+    private final AtomicInteger invalidas = new AtomicInteger();
+
+    /** Nombres de los archivos que no se pudieron leer. */
+    private final Set<String> fallidos = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Crea un importador.
+     *
+     * @param existentes Personas que ya están en la lista y no deben volver a añadirse.
+     * @param publicador Recibe, siempre desde un mismo hilo, los lotes de personas nuevas.
+     */
+    public ImportadorCSV(Collection<Persona> existentes, Consumer<List<Persona>> publicador) {
+        this.vistas.addAll(existentes);
+        this.publicador = publicador;
+    }
+
+    /**
+     * Importa los archivos indicados y espera a que todos se hayan leído y publicado.
+     * Este método bloquea, por lo que no debe llamarse desde el hilo de JavaFX.
+     *
+     * @param archivos Los archivos CSV que se quieren importar.
+     * @return El resumen de la importación.
+     * @throws InterruptedException si el hilo se interrumpe mientras espera.
+     */
+    public Resumen importar(List<File> archivos) throws InterruptedException {
+        BlockingQueue<List<Persona>> cola = new LinkedBlockingQueue<>();
+        AtomicInteger importadas = new AtomicInteger();
+
+        // Un único consumidor publica los lotes fusionados
+        Thread consumidor = Thread.ofVirtual().name("importar-csv-consumidor").start(() -> {
+            try {
+                publicarLotes(cola, importadas);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        try {
+            // Un hilo virtual por archivo; close() espera a que terminen todos
+            try (ExecutorService lectores = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (File archivo : archivos) {
+                    lectores.submit(() -> {
+                        leerArchivo(archivo, cola);
+                        return null;
+                    });
+                }
+            }
+
+            cola.put(FIN);
+            consumidor.join();
+        } finally {
+            // Si no se llegó a entregar el lote de fin, el consumidor seguiría esperando
+            consumidor.interrupt();
+        }
+        return new Resumen(importadas.get(), duplicadas.get(), invalidas.get(), List.copyOf(fallidos));
+    }
+
+    /**
+     * Lee un archivo CSV y entrega sus personas nuevas a la cola en lotes.
+     *
+     * @param archivo El archivo que se va a leer.
+     * @param cola    La cola compartida con el consumidor.
+     * @throws InterruptedException si el hilo se interrumpe mientras entrega un lote.
+     */
+    private void leerArchivo(File archivo, BlockingQueue<List<Persona>> cola) throws InterruptedException {
+        List<Persona> lote = new ArrayList<>(TAMANO_LOTE);
+        try (BufferedReader reader = new BufferedReader(new FileReader(archivo))) {
+            String line;
+            reader.readLine();  // Ignorar la primera línea (cabecera)
+
+            while ((line = reader.readLine()) != null) {
+                Persona persona;
+                try {
+                    persona = CsvPersonas.desdeLinea(line);
+                } catch (IllegalArgumentException e) {
+                    invalidas.incrementAndGet();
+                    continue;
+                }
+
+                if (vistas.add(persona)) {
+                    lote.add(persona);
+                    if (lote.size() == TAMANO_LOTE) {
+                        cola.put(lote);
+                        lote = new ArrayList<>(TAMANO_LOTE);
+                    }
+                } else {
+                    duplicadas.incrementAndGet();
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            fallidos.add(archivo.getName());
+        }
+
+        if (!lote.isEmpty()) {
+            cola.put(lote);
+        }
+    }
+
+    /**
+     * Toma los lotes de la cola, fusiona los que estén disponibles y los publica
+     * hasta recibir el lote de fin.
+     *
+     * @param cola       La cola compartida con los lectores.
+     * @param importadas Contador de personas publicadas.
+     * @throws InterruptedException si el hilo se interrumpe mientras espera un lote.
+     */
+    private void publicarLotes(BlockingQueue<List<Persona>> cola, AtomicInteger importadas) throws InterruptedException {
+        List<List<Persona>> pendientes = new ArrayList<>();
+        boolean terminado = false;
+
+        while (!terminado) {
+            pendientes.add(cola.take());
+            cola.drainTo(pendientes);
+
+            List<Persona> fusion = new ArrayList<>();
+            for (List<Persona> lote : pendientes) {
+                if (lote == FIN) {
+                    terminado = true;
+                } else {
+                    fusion.addAll(lote);
+                }
+            }
+            pendientes.clear();
+
+            if (!fusion.isEmpty()) {
+                importadas.addAndGet(fusion.size());
+                publicador.accept(fusion);
+            }
+        }
+    }
+
+    /**
+     * Resumen del resultado de una importación.
+     *
+     * @param importadas Número de personas nuevas añadidas.
+     * @param duplicadas Número de personas descartadas por estar repetidas.
+     * @param invalidas  Número de líneas descartadas por tener un formato inválido.
+     * @param fallidos   Nombres de los archivos que no se pudieron leer.
+     */
+    public record Resumen(int importadas, int duplicadas, int invalidas, List<String> fallidos) {
+    }
+}
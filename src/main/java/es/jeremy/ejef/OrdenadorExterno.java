@@ -0,0 +1,324 @@
+package es.jeremy.ejef;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * La clase {@code OrdenadorExterno} ordena personas por apellidos, nombre y edad sin
+ * necesidad de tenerlas todas en memoria. Divide la entrada en tramos de tamaño fijo,
+ * los ordena en paralelo y los vuelca a archivos temporales, y después los mezcla con
+ * un montículo eliminando las personas repetidas.
+ * La memoria usada depende del tamaño de tramo y del número de procesadores, no del
+ * tamaño de la entrada.
+ * Los tramos se guardan en formato binario para no perder datos que el CSV no puede
+ * representar, como los nombres con comas.
+ */
+public class OrdenadorExterno {
+
+    /** Orden de exportación: apellidos, nombre y edad. Es coherente con {@link Persona#equals}. */
+    public static final Comparator<Persona> ORDEN = Comparator.comparing(Persona::getApellidos)
+            .thenComparing(Persona::getNombre)
+            .thenComparingInt(Persona::getEdad);
+
+    /** Número máximo de archivos que se mezclan a la vez. */
+    private static final int MAXIMO_MEZCLA = 64;
+
+    /** Número máximo de personas que se ordenan en memoria en cada tramo. */
+    private final int tamanoTramo;
+
+    /** Número de tramos que se ordenan a la vez. */
+    private final int paralelismo;
+
+    /**
+     * Crea un ordenador externo.
+     *
+     * @param tamanoTramo Número máximo de personas de cada tramo en memoria.
+     * @throws IllegalArgumentException si el tamaño de tramo no es positivo.
+     */
+    public OrdenadorExterno(int tamanoTramo) {
+        if (tamanoTramo <= 0) {
+            throw new IllegalArgumentException("El tamaño de tramo debe ser positivo.");
+        }
+        this.tamanoTramo = tamanoTramo;
+        this.paralelismo = Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Ordena las personas del origen y las escribe en el destino en formato CSV,
+     * sin cabecera y sin repetidos.
+     *
+     * @param origen  Las personas que se quieren ordenar.
+     * @param destino El escritor donde se guarda el resultado.
+     * @throws IOException si falla la escritura o la lectura de los archivos temporales.
+     */
+    public void ordenar(Iterator<Persona> origen, Writer destino) throws IOException {
+        // Todos los archivos temporales creados, para borrarlos pase lo que pase
+        List<Path> creados = Collections.synchronizedList(new ArrayList<>());
+        try {
+            List<Path> tramos = crearTramos(origen, creados);
+
+            // Mezclar por grupos hasta que queden pocos tramos para la mezcla final
+            while (tramos.size() > MAXIMO_MEZCLA) {
+                List<Path> siguientes = new ArrayList<>();
+                for (int i = 0; i < tramos.size(); i += MAXIMO_MEZCLA) {
+                    List<Path> grupo = tramos.subList(i, Math.min(i + MAXIMO_MEZCLA, tramos.size()));
+                    Path mezcla = crearTemporal(creados);
+                    siguientes.add(mezcla);
+                    try (DataOutputStream salida = abrirSalida(mezcla)) {
+                        mezclar(grupo, persona -> escribirPersona(salida, persona));
+                        salida.writeBoolean(false);
+                    }
+                    borrar(grupo);
+                }
+                tramos = siguientes;
+            }
+
+            mezclar(tramos, persona -> destino.write(CsvPersonas.aLinea(persona) + "\n"));
+        } finally {
+            borrar(creados);
+        }
+    }
+
+    /**
+     * Lee el origen en tramos, los ordena en paralelo y los vuelca a archivos temporales.
+     * Un semáforo limita los tramos en memoria al paralelismo del ordenador.
+     * Antes de volver, incluso si hay un error o una interrupción, espera a que terminen
+     * todas las tareas para que ninguna cree archivos después de la limpieza.
+     *
+     * @param origen  Las personas que se quieren ordenar.
+     * @param creados Lista donde se apunta cada archivo temporal creado.
+     * @return Los archivos temporales con cada tramo ordenado.
+     * @throws IOException si no se pudo escribir algún tramo o se interrumpe la ordenación.
+     */
+    private List<Path> crearTramos(Iterator<Persona> origen, List<Path> creados) throws IOException {
+        List<Future<Path>> pendientes = new ArrayList<>();
+        Semaphore enMemoria = new Semaphore(paralelismo);
+        ExecutorService ordenadores = Executors.newFixedThreadPool(paralelismo);
+        boolean interrumpido = false;
+        try {
+            while (origen.hasNext()) {
+                enMemoria.acquire();
+                List<Persona> tramo = new ArrayList<>(tamanoTramo);
+                while (origen.hasNext() && tramo.size() < tamanoTramo) {
+                    tramo.add(origen.next());
+                }
+                pendientes.add(ordenadores.submit(() -> {
+                    try {
+                        return volcarTramo(tramo, creados);
+                    } finally {
+                        enMemoria.release();
+                    }
+                }));
+            }
+
+            List<Path> tramos = new ArrayList<>();
+            IOException error = null;
+            for (Future<Path> pendiente : pendientes) {
+                try {
+                    tramos.add(pendiente.get());
+                } catch (ExecutionException e) {
+                    if (error == null) {
+                        error = e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+                    }
+                }
+            }
+            if (error != null) {
+                throw error;
+            }
+            return tramos;
+        } catch (InterruptedException e) {
+            interrumpido = true;
+            throw new IOException("La ordenación se ha interrumpido.", e);
+        } finally {
+            if (interrumpido) {
+                ordenadores.shutdownNow();
+            } else {
+                ordenadores.shutdown();
+            }
+            while (!ordenadores.isTerminated()) {
+                try {
+                    ordenadores.awaitTermination(1, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    interrumpido = true;
+                }
+            }
+            if (interrumpido) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Ordena un tramo en memoria y lo escribe en un archivo temporal.
+     *
+     * @param tramo   Las personas del tramo.
+     * @param creados Lista donde se apunta el archivo temporal creado.
+     * @return El archivo temporal con el tramo ordenado.
+     * @throws IOException si no se pudo escribir el archivo.
+     */
+    private Path volcarTramo(List<Persona> tramo, List<Path> creados) throws IOException {
+        tramo.sort(ORDEN);
+        Path archivo = crearTemporal(creados);
+        try (DataOutputStream salida = abrirSalida(archivo)) {
+            for (Persona persona : tramo) {
+                escribirPersona(salida, persona);
+            }
+            salida.writeBoolean(false);
+        }
+        return archivo;
+    }
+
+    /**
+     * Mezcla varios tramos ordenados usando un montículo con la primera persona de cada uno.
+     * Las personas iguales quedan contiguas, así que solo se entrega la primera.
+     *
+     * @param tramos  Los archivos de los tramos ordenados.
+     * @param destino Recibe cada persona de la mezcla, en orden.
+     * @throws IOException si falla la lectura o la escritura.
+     */
+    private void mezclar(List<Path> tramos, Destino destino) throws IOException {
+        PriorityQueue<Cabeza> monticulo = new PriorityQueue<>(Math.max(1, tramos.size()),
+                Comparator.comparing(Cabeza::persona, ORDEN));
+        List<DataInputStream> lectores = new ArrayList<>();
+        try {
+            for (Path tramo : tramos) {
+                DataInputStream entrada = new DataInputStream(new BufferedInputStream(Files.newInputStream(tramo)));
+                lectores.add(entrada);
+                Cabeza cabeza = Cabeza.leer(entrada);
+                if (cabeza != null) {
+                    monticulo.add(cabeza);
+                }
+            }
+
+            Persona anterior = null;
+            while (!monticulo.isEmpty()) {
+                Cabeza cabeza = monticulo.poll();
+                if (!cabeza.persona().equals(anterior)) {
+                    destino.escribir(cabeza.persona());
+                    anterior = cabeza.persona();
+                }
+                Cabeza siguiente = Cabeza.leer(cabeza.entrada());
+                if (siguiente != null) {
+                    monticulo.add(siguiente);
+                }
+            }
+        } finally {
+            for (DataInputStream entrada : lectores) {
+                entrada.close();
+            }
+        }
+    }
+
+    /**
+     * Crea un archivo temporal para un tramo y lo apunta en la lista de creados.
+     *
+     * @param creados Lista donde se apunta el archivo creado.
+     * @return El archivo temporal.
+     * @throws IOException si no se pudo crear el archivo.
+     */
+    private static Path crearTemporal(List<Path> creados) throws IOException {
+        Path archivo = Files.createTempFile("personas-", ".tramo");
+        creados.add(archivo);
+        return archivo;
+    }
+
+    /**
+     * Abre un archivo de tramo para escribir en él.
+     *
+     * @param archivo El archivo del tramo.
+     * @return El flujo de salida del tramo.
+     * @throws IOException si no se pudo abrir el archivo.
+     */
+    private static DataOutputStream abrirSalida(Path archivo) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(archivo)));
+    }
+
+    /**
+     * Escribe una persona en un tramo, precedida de una marca que indica que hay más datos.
+     *
+     * @param salida  El flujo de salida del tramo.
+     * @param persona La persona que se escribe.
+     * @throws IOException si falla la escritura.
+     */
+    private static void escribirPersona(DataOutputStream salida, Persona persona) throws IOException {
+        salida.writeBoolean(true);
+        salida.writeUTF(persona.getNombre());
+        salida.writeUTF(persona.getApellidos());
+        salida.writeInt(persona.getEdad());
+    }
+
+    /**
+     * Borra los archivos temporales indicados, ignorando los errores.
+     *
+     * @param archivos Los archivos que se quieren borrar.
+     */
+    private static void borrar(List<Path> archivos) {
+        synchronized (archivos) {
+            for (Path archivo : archivos) {
+                try {
+                    Files.deleteIfExists(archivo);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Recibe las personas que produce una mezcla.
+     */
+    private interface Destino {
+
+        /**
+         * Escribe una persona.
+         *
+         * @param persona La persona que se escribe.
+         * @throws IOException si falla la escritura.
+         */
+        void escribir(Persona persona) throws IOException;
+    }
+
+    /**
+     * Primera persona pendiente de un tramo, junto con el flujo del que procede.
+     *
+     * @param persona La persona leída.
+     * @param entrada El flujo de entrada del tramo.
+     */
+    private record Cabeza(Persona persona, DataInputStream entrada) {
+
+        /**
+         * Lee la siguiente persona de un tramo.
+         *
+         * @param entrada El flujo de entrada del tramo.
+         * @return La cabeza leída, o {@code null} si el tramo se ha terminado.
+         * @throws IOException si falla la lectura.
+         */
+        static Cabeza leer(DataInputStream entrada) throws IOException {
+            if (!entrada.readBoolean()) {
+                return null;
+            }
+            String nombre = entrada.readUTF();
+            String apellidos = entrada.readUTF();
+            int edad = entrada.readInt();
+            return new Cabeza(new Persona(nombre, apellidos, edad), entrada);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package es.jeremy.ejef;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Pruebas de {@link CsvPersonas}.
+ */
+class CsvPersonasTest {
+
+    @Test
+    void conservaComasYComillas() {
+        Persona persona = new Persona("Ana, María", "O\"Brien", 30);
+        String linea = CsvPersonas.aLinea(persona);
+
+        assertEquals("\"Ana, María\",\"O\"\"Brien\",30", linea);
+        assertEquals(persona, CsvPersonas.desdeLinea(linea));
+    }
+
+    @Test
+    void leeLineasSinComillas() {
+        assertEquals(new Persona("Ana", "Pérez", 30), CsvPersonas.desdeLinea("Ana,Pérez,30"));
+        assertEquals(new Persona("O\"Brien", "Pérez", 30), CsvPersonas.desdeLinea("O\"Brien,Pérez,30"));
+    }
+
+    @Test
+    void rechazaLineasInvalidas() {
+        assertThrows(IllegalArgumentException.class, () -> CsvPersonas.desdeLinea("Ana,Pérez"));
+        assertThrows(IllegalArgumentException.class, () -> CsvPersonas.desdeLinea("Ana,Pérez,treinta"));
+        assertThrows(IllegalArgumentException.class, () -> CsvPersonas.desdeLinea("\"Ana,Pérez,30"));
+    }
+}
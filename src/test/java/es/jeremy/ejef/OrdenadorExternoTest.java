@@ -0,0 +1,113 @@
+package es.jeremy.ejef;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Pruebas de {@link OrdenadorExterno}.
+ * Usan tramos muy pequeños para que haya muchos archivos temporales y se pase por la
+ * mezcla intermedia, que con el tamaño real de exportación necesitaría millones de filas.
+ */
+class OrdenadorExternoTest {
+
+    /**
+     * Ordena las personas con el ordenador externo y devuelve las líneas escritas.
+     *
+     * @param personas    Las personas que se ordenan.
+     * @param tamanoTramo El tamaño de tramo del ordenador.
+     * @return Las líneas CSV escritas, sin cabecera.
+     * @throws IOException si falla la ordenación.
+     */
+    private static List<String> ordenar(List<Persona> personas, int tamanoTramo) throws IOException {
+        StringWriter salida = new StringWriter();
+        new OrdenadorExterno(tamanoTramo).ordenar(personas.iterator(), salida);
+        String texto = salida.toString();
+        return texto.isEmpty() ? List.of() : List.of(texto.split("\n"));
+    }
+
+    /**
+     * Calcula el resultado esperado: las personas distintas, ordenadas, en formato CSV.
+     *
+     * @param personas Las personas de entrada.
+     * @return Las líneas CSV esperadas.
+     */
+    private static List<String> esperado(List<Persona> personas) {
+        TreeSet<Persona> distintas = new TreeSet<>(OrdenadorExterno.ORDEN);
+        distintas.addAll(personas);
+        List<String> lineas = new ArrayList<>();
+        for (Persona persona : distintas) {
+            lineas.add(CsvPersonas.aLinea(persona));
+        }
+        return lineas;
+    }
+
+    @Test
+    void ordenaPorApellidosNombreYEdad() throws IOException {
+        List<Persona> personas = List.of(
+                new Persona("Luis", "Pérez", 40),
+                new Persona("Ana", "Pérez", 30),
+                new Persona("Ana", "García", 50),
+                new Persona("Ana", "Pérez", 20));
+
+        assertEquals(List.of(
+                CsvPersonas.aLinea(new Persona("Ana", "García", 50)),
+                CsvPersonas.aLinea(new Persona("Ana", "Pérez", 20)),
+                CsvPersonas.aLinea(new Persona("Ana", "Pérez", 30)),
+                CsvPersonas.aLinea(new Persona("Luis", "Pérez", 40))), ordenar(personas, 2));
+    }
+
+    @Test
+    void eliminaRepetidosDeDistintosTramos() throws IOException {
+        List<Persona> personas = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            personas.add(new Persona("Ana", "Pérez", 30));
+            personas.add(new Persona("Luis", "Gómez", i % 3));
+        }
+
+        assertEquals(esperado(personas), ordenar(personas, 1));
+    }
+
+    @Test
+    void mezclaIntermediaConMuchosTramos() throws IOException {
+        // 1000 personas en tramos de 3 dan más de 300 tramos: varias mezclas intermedias
+        Random random = new Random(42);
+        List<Persona> personas = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            personas.add(new Persona("N" + random.nextInt(50), "A" + random.nextInt(20), random.nextInt(5)));
+        }
+        Collections.shuffle(personas, random);
+
+        assertEquals(esperado(personas), ordenar(personas, 3));
+    }
+
+    @Test
+    void conservaNombresConComas() throws IOException {
+        List<Persona> personas = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            personas.add(new Persona("Ana, María", "Pérez, de la Torre", i % 7));
+            personas.add(new Persona("José", "López", i % 11));
+        }
+
+        assertEquals(esperado(personas), ordenar(personas, 2));
+    }
+
+    @Test
+    void entradaVacia() throws IOException {
+        assertEquals(List.of(), ordenar(List.of(), 4));
+    }
+
+    @Test
+    void rechazaTamanoDeTramoNoPositivo() {
+        assertThrows(IllegalArgumentException.class, () -> new OrdenadorExterno(0));
+    }
+}